@@ -0,0 +1,56 @@
+package io.appform.opentracing;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * In-flight call counter for a single traced method, along with the high-water mark seen since the last read.
+ * Both counters are padded onto cache lines of their own so that neighbouring gauges do not contend with each
+ * other. The in-flight count is a single counter rather than a striped one, as every entry needs its exact value.
+ */
+class ConcurrencyGauge {
+    private static final AtomicLongFieldUpdater<ConcurrencyGauge> IN_FLIGHT
+            = AtomicLongFieldUpdater.newUpdater(ConcurrencyGauge.class, "inFlight");
+    private static final AtomicLongFieldUpdater<ConcurrencyGauge> HIGH_WATER_MARK
+            = AtomicLongFieldUpdater.newUpdater(ConcurrencyGauge.class, "highWaterMark");
+
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long inFlight;
+    @SuppressWarnings("unused")
+    private long q1, q2, q3, q4, q5, q6, q7;
+    private volatile long highWaterMark;
+    @SuppressWarnings("unused")
+    private long r1, r2, r3, r4, r5, r6, r7;
+
+    /**
+     * Marks a call as started.
+     * @return Number of calls in flight, including this one
+     */
+    long enter() {
+        final long current = IN_FLIGHT.incrementAndGet(this);
+        long mark = highWaterMark;
+        while (current > mark) {
+            if (HIGH_WATER_MARK.compareAndSet(this, mark, current)) {
+                break;
+            }
+            mark = highWaterMark;
+        }
+        return current;
+    }
+
+    void exit() {
+        IN_FLIGHT.decrementAndGet(this);
+    }
+
+    long inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Reads the high-water mark and resets it to the current in-flight count.
+     * @return Highest concurrency observed since the previous call
+     */
+    long readAndResetHighWaterMark() {
+        return HIGH_WATER_MARK.getAndSet(this, inFlight);
+    }
+}
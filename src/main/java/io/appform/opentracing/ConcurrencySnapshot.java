@@ -0,0 +1,40 @@
+package io.appform.opentracing;
+
+/**
+ * Point in time view of the concurrency gauge of a traced method
+ */
+public class ConcurrencySnapshot {
+    private final String className;
+    private final String methodName;
+    private final long inFlight;
+    private final long highWaterMark;
+
+    public ConcurrencySnapshot(String className, String methodName, long inFlight, long highWaterMark) {
+        this.className = className;
+        this.methodName = methodName;
+        this.inFlight = inFlight;
+        this.highWaterMark = highWaterMark;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return Number of calls in flight when the snapshot was taken
+     */
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return Highest number of concurrent calls seen since the previous snapshot
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+}
@@ -0,0 +1,31 @@
+package io.appform.opentracing;
+
+import java.util.List;
+
+/**
+ * Keeps per method concurrency gauges. Gauges are maintained only when
+ * {@link TracingOptions#isConcurrencyTrackingEnabled()} is set.
+ */
+public class ConcurrencyTracker {
+
+    private static final FunctionMetricRegistry<ConcurrencyGauge> gauges = new FunctionMetricRegistry<>(
+            FunctionData::getConcurrencyGauge, FunctionData::setConcurrencyGauge, ConcurrencyGauge::new);
+
+    private ConcurrencyTracker() {
+    }
+
+    /**
+     * Reads the gauges of all live traced methods seen so far. High-water marks are reset on every read.
+     * @return One snapshot per traced method
+     */
+    public static List<ConcurrencySnapshot> snapshot() {
+        return gauges.snapshot((functionData, gauge) -> new ConcurrencySnapshot(functionData.getClassName(),
+                                                                                functionData.getMethodName(),
+                                                                                gauge.inFlight(),
+                                                                                gauge.readAndResetHighWaterMark()));
+    }
+
+    static ConcurrencyGauge gauge(final FunctionData functionData) {
+        return gauges.get(functionData);
+    }
+}
@@ -22,10 +22,18 @@ package io.appform.opentracing;
 public class FunctionData {
     private final String className;
     private final String methodName;
+    private final boolean resourceUsageCaptureEnabled;
+    private volatile ConcurrencyGauge concurrencyGauge;
+    private volatile ResourceUsage resourceUsage;
 
     public FunctionData(String className, String methodName) {
+        this(className, methodName, false);
+    }
+
+    public FunctionData(String className, String methodName, boolean resourceUsageCaptureEnabled) {
         this.className = className;
         this.methodName = methodName;
+        this.resourceUsageCaptureEnabled = resourceUsageCaptureEnabled;
     }
 
     public String getClassName() {
@@ -35,5 +43,24 @@ public class FunctionData {
     public String getMethodName() {
         return methodName;
     }
-}
 
+    public boolean isResourceUsageCaptureEnabled() {
+        return resourceUsageCaptureEnabled;
+    }
+
+    ConcurrencyGauge getConcurrencyGauge() {
+        return concurrencyGauge;
+    }
+
+    void setConcurrencyGauge(final ConcurrencyGauge concurrencyGauge) {
+        this.concurrencyGauge = concurrencyGauge;
+    }
+
+    ResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
+    void setResourceUsage(final ResourceUsage resourceUsage) {
+        this.resourceUsage = resourceUsage;
+    }
+}
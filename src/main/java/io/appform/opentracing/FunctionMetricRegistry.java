@@ -0,0 +1,73 @@
+package io.appform.opentracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one kind of per method metric. A metric lives on the cached {@link FunctionData} of its method and is
+ * created on first use. Function data is only weakly tracked here, so a metric goes away along with the class of
+ * its method and a registry never pins classes of redeployed applications.
+ * @param <T> Type of the metric
+ */
+class FunctionMetricRegistry<T> {
+    private final Set<FunctionData> tracked = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+    private final Function<FunctionData, T> getter;
+    private final BiConsumer<FunctionData, T> setter;
+    private final Supplier<T> factory;
+
+    FunctionMetricRegistry(final Function<FunctionData, T> getter,
+                           final BiConsumer<FunctionData, T> setter,
+                           final Supplier<T> factory) {
+        this.getter = getter;
+        this.setter = setter;
+        this.factory = factory;
+    }
+
+    /**
+     * @param functionData Cached function data of the method
+     * @return Metric of the method, created if this is its first use
+     */
+    T get(final FunctionData functionData) {
+        final T metric = getter.apply(functionData);
+        return metric != null
+                ? metric
+                : create(functionData);
+    }
+
+    /**
+     * Reads the metrics of all live methods seen so far
+     * @param reader Converts the metric of a method into a snapshot
+     * @param <S> Type of the snapshot
+     * @return One snapshot per method
+     */
+    <S> List<S> snapshot(final BiFunction<FunctionData, T, S> reader) {
+        final List<FunctionData> functions;
+        synchronized (tracked) {
+            functions = new ArrayList<>(tracked);
+        }
+        return functions.stream()
+                .map(functionData -> reader.apply(functionData, getter.apply(functionData)))
+                .collect(Collectors.toList());
+    }
+
+    private T create(final FunctionData functionData) {
+        synchronized (functionData) {
+            T metric = getter.apply(functionData);
+            if (metric == null) {
+                metric = factory.get();
+                setter.accept(functionData, metric);
+                tracked.add(functionData);
+            }
+            return metric;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.appform.opentracing;
+
+import com.google.common.base.Joiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background scanner that reports traced calls which have been running for longer than a deadline. Each such call
+ * is reported once: a warning is logged and a partial span carrying the current stack of the thread is finished
+ * right away as a child of the span of the call, so that the report reaches the tracer even if the call never
+ * returns.
+ */
+class HungCallWatchdog {
+    private static final Logger log = LoggerFactory.getLogger(HungCallWatchdog.class.getSimpleName());
+
+    static final int MAX_STACK_DEPTH = 64;
+
+    private final long deadlineNanos;
+    private final ScheduledExecutorService executorService;
+
+    private HungCallWatchdog(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "tracing-hung-call-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static HungCallWatchdog start(final long deadlineMs,
+                                  final long scanIntervalMs) {
+        final HungCallWatchdog watchdog = new HungCallWatchdog(TimeUnit.MILLISECONDS.toNanos(deadlineMs));
+        watchdog.executorService.scheduleWithFixedDelay(watchdog::scan, scanIntervalMs, scanIntervalMs,
+                TimeUnit.MILLISECONDS);
+        return watchdog;
+    }
+
+    void stop() {
+        executorService.shutdownNow();
+    }
+
+    void scan() {
+        try {
+            final long now = System.nanoTime();
+            InFlightCallRegistry.forEachThread((thread, calls) -> {
+                String stack = null;
+                for (InFlightCall call : calls) {
+                    final long elapsedNanos = now - call.getStartNanos();
+                    if (call.isReported() || elapsedNanos < deadlineNanos) {
+                        continue;
+                    }
+                    try {
+                        if (stack == null) {
+                            stack = stackOf(thread);
+                        }
+                        report(call, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), stack);
+                    } catch (Exception e) {
+                        log.error("Error while reporting hung call", e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error while scanning for hung calls", e);
+        }
+    }
+
+    private void report(final InFlightCall call,
+                        final long elapsedMs,
+                        final String stack) {
+        call.markReported();
+        final FunctionData functionData = call.getFunctionData();
+        log.warn("Traced call running for {} ms [class = {}, method = {}, thread = {}]", elapsedMs,
+                functionData.getClassName(), functionData.getMethodName(), call.getThread().getName());
+        TracingHandler.reportHungCall(TracingHandler.getTracer(), call.getSpan(), functionData, elapsedMs,
+                call.getThread().getName(), stack);
+    }
+
+    private static String stackOf(final Thread thread) {
+        final StackTraceElement[] stackTrace = thread.getStackTrace();
+        return Joiner.on('\n').join(Arrays.copyOf(stackTrace, Math.min(stackTrace.length, MAX_STACK_DEPTH)));
+    }
+}
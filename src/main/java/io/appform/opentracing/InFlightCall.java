@@ -0,0 +1,79 @@
+package io.appform.opentracing;
+
+import io.opentracing.Span;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A traced call that is currently executing on some thread
+ */
+class InFlightCall {
+    private final Thread thread;
+    private final FunctionData functionData;
+    private final Span span;
+    private final long startNanos;
+    private volatile boolean reported;
+    private Map<String, Integer> frameSamples;
+
+    InFlightCall(Thread thread, FunctionData functionData, Span span, long startNanos) {
+        this.thread = thread;
+        this.functionData = functionData;
+        this.span = span;
+        this.startNanos = startNanos;
+    }
+
+    Thread getThread() {
+        return thread;
+    }
+
+    FunctionData getFunctionData() {
+        return functionData;
+    }
+
+    /**
+     * @return Span of the call, null if no span was started for it
+     */
+    Span getSpan() {
+        return span;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    boolean isReported() {
+        return reported;
+    }
+
+    void markReported() {
+        this.reported = true;
+    }
+
+    synchronized void addFrameSample(final String frame) {
+        if (frameSamples == null) {
+            frameSamples = new HashMap<>();
+        }
+        frameSamples.merge(frame, 1, Integer::sum);
+    }
+
+    /**
+     * @param limit Maximum number of frames to return
+     * @return Most sampled frames with their sample counts, most frequent first
+     */
+    synchronized List<Map.Entry<String, Integer>> hotFrames(final int limit) {
+        if (frameSamples == null) {
+            return Collections.emptyList();
+        }
+        return frameSamples.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(limit)
+                .<Map.Entry<String, Integer>>map(AbstractMap.SimpleImmutableEntry::new)
+                .collect(Collectors.toList());
+    }
+}
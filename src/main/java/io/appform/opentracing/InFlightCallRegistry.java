@@ -0,0 +1,107 @@
+package io.appform.opentracing;
+
+import io.opentracing.Span;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Registry of traced calls that are currently executing, used by background threads that need to look at running
+ * calls. Every thread keeps its own stack of calls which only that thread writes to, so registering and
+ * unregistering a call is O(1) and takes no locks. A thread's stack is published to the registry the first time
+ * the thread makes a traced call and is dropped once the thread dies.
+ */
+class InFlightCallRegistry {
+    /**
+     * Calls nested deeper than this on a thread are not registered
+     */
+    static final int MAX_TRACKED_DEPTH = 32;
+
+    private static final Queue<ThreadCalls> threads = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<ThreadCalls> CURRENT = ThreadLocal.withInitial(() -> {
+        final ThreadCalls calls = new ThreadCalls(Thread.currentThread());
+        threads.add(calls);
+        return calls;
+    });
+
+    private InFlightCallRegistry() {
+    }
+
+    static InFlightCall register(final FunctionData functionData,
+                                 final Span span) {
+        final InFlightCall call = new InFlightCall(Thread.currentThread(), functionData, span, System.nanoTime());
+        CURRENT.get().push(call);
+        return call;
+    }
+
+    static void unregister() {
+        CURRENT.get().pop();
+    }
+
+    /**
+     * Visits all threads that have calls in flight. The calls are passed outermost first. As the owning threads keep
+     * running, a visited call may have finished by the time it is looked at.
+     * @param visitor Receives the thread and the calls in flight on it
+     */
+    static void forEachThread(final BiConsumer<Thread, InFlightCall[]> visitor) {
+        final Iterator<ThreadCalls> iterator = threads.iterator();
+        while (iterator.hasNext()) {
+            final ThreadCalls calls = iterator.next();
+            if (!calls.thread.isAlive()) {
+                iterator.remove();
+                continue;
+            }
+            final InFlightCall[] snapshot = calls.snapshot();
+            if (snapshot.length != 0) {
+                visitor.accept(calls.thread, snapshot);
+            }
+        }
+    }
+
+    private static class ThreadCalls {
+        private static final InFlightCall[] EMPTY = new InFlightCall[0];
+
+        private final Thread thread;
+        private final InFlightCall[] calls = new InFlightCall[MAX_TRACKED_DEPTH];
+        private volatile int depth;
+
+        private ThreadCalls(Thread thread) {
+            this.thread = thread;
+        }
+
+        private void push(final InFlightCall call) {
+            final int current = depth;
+            if (current < MAX_TRACKED_DEPTH) {
+                calls[current] = call;
+            }
+            depth = current + 1;
+        }
+
+        private void pop() {
+            final int current = depth - 1;
+            depth = current;
+            if (current < MAX_TRACKED_DEPTH) {
+                calls[current] = null;
+            }
+        }
+
+        private InFlightCall[] snapshot() {
+            final int current = Math.min(depth, MAX_TRACKED_DEPTH);
+            if (current <= 0) {
+                return EMPTY;
+            }
+            int count = 0;
+            final InFlightCall[] result = new InFlightCall[current];
+            for (int i = 0; i < current; i++) {
+                final InFlightCall call = calls[i];
+                if (call != null) {
+                    result[count++] = call;
+                }
+            }
+            return count == current ? result : Arrays.copyOf(result, count);
+        }
+    }
+}
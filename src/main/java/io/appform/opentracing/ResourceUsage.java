@@ -0,0 +1,35 @@
+package io.appform.opentracing;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of the resources used by calls to a traced method
+ */
+class ResourceUsage {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder cpuTimeNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    void record(final long cpuTimeNanos,
+                final long allocatedBytes) {
+        this.calls.increment();
+        if (cpuTimeNanos > 0) {
+            this.cpuTimeNanos.add(cpuTimeNanos);
+        }
+        if (allocatedBytes > 0) {
+            this.allocatedBytes.add(allocatedBytes);
+        }
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    long cpuTimeNanos() {
+        return cpuTimeNanos.sum();
+    }
+
+    long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+}
@@ -0,0 +1,53 @@
+package io.appform.opentracing;
+
+/**
+ * Point in time view of the resources used by a traced method since startup
+ */
+public class ResourceUsageSnapshot {
+    private final String className;
+    private final String methodName;
+    private final long calls;
+    private final long cpuTimeNanos;
+    private final long allocatedBytes;
+
+    public ResourceUsageSnapshot(String className,
+                                 String methodName,
+                                 long calls,
+                                 long cpuTimeNanos,
+                                 long allocatedBytes) {
+        this.className = className;
+        this.methodName = methodName;
+        this.calls = calls;
+        this.cpuTimeNanos = cpuTimeNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return Number of calls for which usage was captured
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return Total CPU time spent by the calls
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    /**
+     * @return Total bytes allocated by the calls
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
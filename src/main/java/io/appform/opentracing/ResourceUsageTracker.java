@@ -0,0 +1,74 @@
+package io.appform.opentracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Measures CPU time and allocated bytes of the current thread and keeps per method totals. Usage is captured only
+ * when {@link TracingOptions#isResourceUsageCaptureEnabled()} is set, and only for methods that ask for it through
+ * {@link TracingAnnotation#captureResourceUsage()}. Allocated bytes need the HotSpot extension of
+ * {@link ThreadMXBean}; on other JVMs only CPU time is captured.
+ */
+public class ResourceUsageTracker {
+    private static final Logger log = LoggerFactory.getLogger(ResourceUsageTracker.class.getSimpleName());
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final boolean cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+    private static final com.sun.management.ThreadMXBean allocationMXBean = allocationMXBean();
+
+    private static final FunctionMetricRegistry<ResourceUsage> usages = new FunctionMetricRegistry<>(
+            FunctionData::getResourceUsage, FunctionData::setResourceUsage, ResourceUsage::new);
+
+    private ResourceUsageTracker() {
+    }
+
+    /**
+     * Reads the totals of all live methods for which usage has been captured so far
+     * @return One snapshot per traced method
+     */
+    public static List<ResourceUsageSnapshot> snapshot() {
+        return usages.snapshot((functionData, usage) -> new ResourceUsageSnapshot(functionData.getClassName(),
+                                                                                  functionData.getMethodName(),
+                                                                                  usage.calls(),
+                                                                                  usage.cpuTimeNanos(),
+                                                                                  usage.allocatedBytes()));
+    }
+
+    static ResourceUsage usage(final FunctionData functionData) {
+        return usages.get(functionData);
+    }
+
+    /**
+     * @return CPU time of the current thread in nanoseconds, -1 if not supported
+     */
+    static long currentThreadCpuTime() {
+        return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far, -1 if not supported
+     */
+    static long currentThreadAllocatedBytes() {
+        return allocationMXBean != null
+                ? allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (mxBean.isThreadAllocatedMemorySupported() && mxBean.isThreadAllocatedMemoryEnabled()) {
+                    return mxBean;
+                }
+            }
+        } catch (Throwable t) {
+            log.warn("Thread allocation measurement is not available", t);
+        }
+        return null;
+    }
+}
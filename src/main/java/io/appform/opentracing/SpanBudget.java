@@ -0,0 +1,75 @@
+package io.appform.opentracing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Span budget of a single trace. The budget is shared by all threads that take part in the trace, so the limits hold
+ * even when work is fanned out to executors. Spans created under a parent are counted by the id of the parent span.
+ * The trace context that created the budget owns it: it is the one that sits on the root span, so only it reports
+ * the dropped spans and releases the budget.
+ */
+class SpanBudget {
+    private final String traceId;
+    private final TraceContext owner;
+    private final AtomicInteger spansCreated = new AtomicInteger();
+    private final AtomicLong spansDropped = new AtomicLong();
+    private final Map<String, AtomicInteger> childSpans = new ConcurrentHashMap<>();
+
+    SpanBudget(String traceId, TraceContext owner) {
+        this.traceId = traceId;
+        this.owner = owner;
+    }
+
+    /**
+     * Charges the budget for a span under the given parent
+     * @param parentSpanId Id of the span the new span would be a child of, only needed when the per parent limit is set
+     * @param maxSpansPerTrace Maximum number of spans in the trace, 0 if unlimited
+     * @param maxSpansPerParent Maximum number of spans under a single parent, 0 if unlimited
+     * @return true if the span can be created, false if it needs to be dropped
+     */
+    boolean tryAcquire(final String parentSpanId,
+                       final int maxSpansPerTrace,
+                       final int maxSpansPerParent) {
+        AtomicInteger children = null;
+        if (maxSpansPerParent > 0 && parentSpanId != null) {
+            children = childSpans.computeIfAbsent(parentSpanId, key -> new AtomicInteger());
+            if (children.incrementAndGet() > maxSpansPerParent) {
+                spansDropped.incrementAndGet();
+                return false;
+            }
+        }
+        if (maxSpansPerTrace > 0 && spansCreated.incrementAndGet() > maxSpansPerTrace) {
+            if (children != null) {
+                children.decrementAndGet();
+            }
+            spansDropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records a span dropped without charging the budget, e.g. one nested under a span that was dropped itself
+     */
+    void recordDropped() {
+        spansDropped.incrementAndGet();
+    }
+
+    long getSpansDropped() {
+        return spansDropped.get();
+    }
+
+    /**
+     * @return Id of the trace, null if the budget is private to its owner
+     */
+    String getTraceId() {
+        return traceId;
+    }
+
+    boolean isOwnedBy(final TraceContext context) {
+        return owner == context;
+    }
+}
@@ -0,0 +1,62 @@
+package io.appform.opentracing;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span budgets of live traces, keyed by trace id. A budget is released by its owner once the outermost traced call
+ * under the root span returns. The number of budgets is bounded, and a budget that is left behind expires once no
+ * thread of its trace has touched it for a while.
+ */
+class SpanBudgets {
+    private static final Logger log = LoggerFactory.getLogger(SpanBudgets.class.getSimpleName());
+
+    private final Cache<String, SpanBudget> budgets;
+
+    SpanBudgets(final long expiryMs,
+                final long maxTraces) {
+        this.budgets = CacheBuilder.newBuilder()
+                .maximumSize(maxTraces)
+                .expireAfterAccess(expiryMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @param traceId Id of the trace
+     * @param context Trace context that becomes the owner if the trace has no budget yet
+     * @return Budget shared by all threads of the trace, or a budget of its own if the trace id is not known
+     */
+    SpanBudget forTrace(final String traceId,
+                        final TraceContext context) {
+        if (Strings.isNullOrEmpty(traceId)) {
+            return new SpanBudget(null, context);
+        }
+        try {
+            return budgets.get(traceId, () -> new SpanBudget(traceId, context));
+        } catch (ExecutionException e) {
+            log.error("Error while reading span budget", e);
+            return new SpanBudget(null, context);
+        }
+    }
+
+    /**
+     * Makes a released budget visible to the threads of its trace again, when its owner enters another traced call
+     */
+    void register(final SpanBudget budget) {
+        if (budget.getTraceId() != null) {
+            budgets.asMap().putIfAbsent(budget.getTraceId(), budget);
+        }
+    }
+
+    void release(final SpanBudget budget) {
+        if (budget.getTraceId() != null) {
+            budgets.asMap().remove(budget.getTraceId(), budget);
+        }
+    }
+}
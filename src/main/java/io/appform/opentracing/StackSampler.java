@@ -0,0 +1,113 @@
+package io.appform.opentracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background profiler that periodically samples the stacks of threads that are inside traced calls, up to a bounded
+ * depth. Each sample is charged to the innermost application frame and to the innermost traced call of the thread,
+ * and the most sampled frames are put on the span of that call when it finishes. At most a configured number of
+ * threads is sampled per tick, picked round robin, and all of them are sampled in one go, so the overhead of a tick
+ * is bounded.
+ */
+class StackSampler {
+    private static final Logger log = LoggerFactory.getLogger(StackSampler.class.getSimpleName());
+
+    static final int TOP_FRAMES = 5;
+    static final int MAX_SAMPLE_DEPTH = 32;
+    private static final String[] PLATFORM_PACKAGES = {"java.", "javax.", "sun.", "com.sun.", "jdk.", "org.aspectj."};
+
+    private final int maxThreadsPerSample;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService executorService;
+    private int nextThread;
+
+    private StackSampler(int maxThreadsPerSample) {
+        this.maxThreadsPerSample = maxThreadsPerSample;
+        this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "tracing-stack-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static StackSampler start(final long intervalMs,
+                              final int maxThreadsPerSample) {
+        final StackSampler sampler = new StackSampler(maxThreadsPerSample);
+        sampler.executorService.scheduleWithFixedDelay(sampler::sample, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+
+    void stop() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Leaf frames mostly sit in the JDK (parking, socket reads and the like), which does not tell which code of the
+     * traced call is busy. Samples are therefore charged to the innermost application frame.
+     * @param stackTrace Sampled stack, innermost frame first
+     * @return Innermost frame outside the JDK, or the innermost frame if all sampled frames are in the JDK
+     */
+    static StackTraceElement applicationFrame(final StackTraceElement[] stackTrace) {
+        for (StackTraceElement frame : stackTrace) {
+            if (!isPlatformFrame(frame)) {
+                return frame;
+            }
+        }
+        return stackTrace[0];
+    }
+
+    private static boolean isPlatformFrame(final StackTraceElement frame) {
+        for (String platformPackage : PLATFORM_PACKAGES) {
+            if (frame.getClassName().startsWith(platformPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void sample() {
+        try {
+            final List<InFlightCall> candidates = new ArrayList<>();
+            InFlightCallRegistry.forEachThread((thread, calls) -> {
+                final InFlightCall innermost = calls[calls.length - 1];
+                if (innermost.getSpan() != null) {
+                    candidates.add(innermost);
+                }
+            });
+            if (candidates.isEmpty()) {
+                return;
+            }
+            final int count = Math.min(candidates.size(), maxThreadsPerSample);
+            final Map<Long, InFlightCall> sampled = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                final InFlightCall call = candidates.get((nextThread + i) % candidates.size());
+                sampled.put(call.getThread().getId(), call);
+            }
+            nextThread = (nextThread + count) % candidates.size();
+
+            final long[] threadIds = sampled.keySet().stream().mapToLong(Long::longValue).toArray();
+            for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadIds, MAX_SAMPLE_DEPTH)) {
+                if (threadInfo == null || threadInfo.getStackTrace().length == 0) {
+                    continue;
+                }
+                final StackTraceElement frame = applicationFrame(threadInfo.getStackTrace());
+                sampled.get(threadInfo.getThreadId()).addFrameSample(frame.getClassName() + "." + frame.getMethodName()
+                        + ":" + frame.getLineNumber());
+            }
+        } catch (Exception e) {
+            log.error("Error while sampling stacks", e);
+        }
+    }
+}
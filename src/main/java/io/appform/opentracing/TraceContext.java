@@ -0,0 +1,114 @@
+package io.appform.opentracing;
+
+import com.google.common.base.Strings;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Per thread state shared by all traced calls of a trace. The span that is active when a thread enters its outermost
+ * traced call is treated as the root of the trace, and the context is kept for as long as later outermost calls on
+ * the thread run under the same root. Anything computed here is therefore computed once per trace on each thread.
+ * The span budget is not thread local: it is looked up by trace id and shared by all threads of the trace.
+ * The root span is only weakly held so that a finished trace is not pinned by an idle thread.
+ */
+class TraceContext {
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private final WeakReference<Span> rootSpan;
+    private final boolean debug;
+    private final SpanBudgets spanBudgets;
+    private final SpanBudget spanBudget;
+    private int depth;
+    /**
+     * Depth of the outermost traced call whose span was dropped, 0 if none. Calls nested under it are dropped too,
+     * so that they are neither attached to an ancestor nor charged to its budget.
+     */
+    private int droppedDepth;
+
+    private TraceContext(Span rootSpan, boolean debug, SpanBudgets spanBudgets) {
+        this.rootSpan = new WeakReference<>(rootSpan);
+        this.debug = debug;
+        this.spanBudgets = rootSpan != null && !debug ? spanBudgets : null;
+        this.spanBudget = this.spanBudgets != null
+                ? this.spanBudgets.forTrace(TracingHandler.getTraceId(rootSpan), this)
+                : null;
+    }
+
+    static TraceContext enter(final Tracer tracer,
+                              final TracingOptions options) {
+        TraceContext context = CURRENT.get();
+        if (context == null || context.depth == 0) {
+            final Span activeSpan = TracingHandler.getActiveSpan(tracer);
+            if (context == null || activeSpan == null || context.rootSpan.get() != activeSpan) {
+                context = new TraceContext(activeSpan, debugFlagPresent(activeSpan, options.getDebugBaggageKey()),
+                        TracingManager.getSpanBudgets());
+                CURRENT.set(context);
+            } else if (context.ownsSpanBudget()) {
+                context.spanBudgets.register(context.spanBudget);
+            }
+        }
+        context.depth++;
+        return context;
+    }
+
+    void exit() {
+        if (depth == droppedDepth) {
+            droppedDepth = 0;
+        }
+        if (--depth == 0 && ownsSpanBudget()) {
+            if (spanBudget.getSpansDropped() > 0) {
+                TracingHandler.addSpansDroppedTagToSpan(rootSpan.get(), spanBudget.getSpansDropped());
+            }
+            spanBudgets.release(spanBudget);
+        }
+    }
+
+    /**
+     * @return true if the trace carries the debug baggage item and needs to be traced in full detail
+     */
+    boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Checks the span budget for the current traced call and charges it if a span can be created. Debug traces have
+     * no budget.
+     * @param tracer Tracer whose active span would be the parent of the span
+     * @param options Options carrying the budget
+     * @return true if a span can be created, false if the budget is exhausted and the span needs to be dropped
+     */
+    boolean acquireSpan(final Tracer tracer,
+                        final TracingOptions options) {
+        if (spanBudget == null) {
+            return true;
+        }
+        if (droppedDepth > 0) {
+            spanBudget.recordDropped();
+            return false;
+        }
+        final Span parentSpan = TracingHandler.getActiveSpan(tracer);
+        if (parentSpan == null) {
+            return true;
+        }
+        final String parentSpanId = options.getMaxSpansPerParent() > 0
+                ? TracingHandler.getSpanId(parentSpan)
+                : null;
+        if (spanBudget.tryAcquire(parentSpanId, options.getMaxSpansPerTrace(), options.getMaxSpansPerParent())) {
+            return true;
+        }
+        droppedDepth = depth;
+        return false;
+    }
+
+    private boolean ownsSpanBudget() {
+        return spanBudget != null && spanBudget.isOwnedBy(this);
+    }
+
+    private static boolean debugFlagPresent(final Span rootSpan,
+                                            final String baggageKey) {
+        return !Strings.isNullOrEmpty(baggageKey)
+                && !Strings.isNullOrEmpty(TracingHandler.getBaggageItem(rootSpan, baggageKey));
+    }
+}
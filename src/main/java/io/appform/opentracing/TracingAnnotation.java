@@ -24,4 +24,11 @@ public @interface TracingAnnotation {
      */
     String method() default "";
 
+    /**
+     * Capture CPU time and allocated bytes of the call. Takes effect only when
+     * {@link TracingOptions#isResourceUsageCaptureEnabled()} is set.
+     * @return true if resource usage needs to be captured for this method
+     */
+    boolean captureResourceUsage() default false;
+
 }
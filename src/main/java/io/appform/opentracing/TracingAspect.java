@@ -14,6 +14,7 @@ import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -30,7 +31,16 @@ import static io.appform.opentracing.TracingConstants.VALID_PARAM_VALUE_PATTERN;
 public class TracingAspect {
     private static final Logger log = LoggerFactory.getLogger(TracingAspect.class.getSimpleName());
 
-    private final Map<String, FunctionData> paramCache = new ConcurrentHashMap<>();
+    /**
+     * Function data is cached on the declaring class of the traced method, so that entries go away along with the
+     * classloader that loaded the class.
+     */
+    private final ClassValue<Map<Method, FunctionData>> functionDataCache = new ClassValue<Map<Method, FunctionData>>() {
+        @Override
+        protected Map<Method, FunctionData> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
 
     @Pointcut("@annotation(io.appform.opentracing.TracingAnnotation)")
@@ -51,34 +61,119 @@ public class TracingAspect {
 
         final FunctionData functionData = cacheDisabled(options)
                 ? getFunctionData(callSignature, methodSignature)
-                : paramCache.computeIfAbsent(callSignature.toLongString(), key -> getFunctionData(callSignature, methodSignature));
+                : getCachedFunctionData(callSignature, methodSignature);
 
-        final String parameterString = getParameterString(options, methodSignature, joinPoint,
-                functionData.getClassName(), functionData.getMethodName());
+        final Tracer tracer = TracingHandler.getTracer();
+        boolean captureResourceUsage = false;
+        long startCpuTime = -1;
+        long startAllocatedBytes = -1;
 
+        TraceContext traceContext = null;
+        ConcurrencyGauge gauge = null;
+        boolean debug = false;
         Span span = null;
         Scope scope = null;
+        InFlightCall inFlightCall = null;
         try {
-            final Tracer tracer = TracingHandler.getTracer();
-            span = TracingHandler.startSpan(tracer, functionData, parameterString);
+            if (traceContextEnabled(options)) {
+                traceContext = TraceContext.enter(tracer, options);
+                debug = traceContext.isDebug();
+            }
+            final String parameterString = getParameterString(debug || parameterCaptureEnabled(options),
+                    methodSignature, joinPoint, functionData.getClassName(), functionData.getMethodName());
+            long concurrency = 0;
+            if (concurrencyTrackingEnabled(options)) {
+                final ConcurrencyGauge functionGauge = ConcurrencyTracker.gauge(
+                        getMetricsFunctionData(options, functionData, callSignature, methodSignature));
+                concurrency = functionGauge.enter();
+                gauge = functionGauge;
+            }
+            if (traceContext == null || traceContext.acquireSpan(tracer, options)) {
+                span = TracingHandler.startSpan(tracer, functionData, parameterString, debug);
+            }
+            if (gauge != null) {
+                TracingHandler.addConcurrencyTagToSpan(span, concurrency);
+            }
+            if (inFlightTrackingEnabled(options)) {
+                inFlightCall = InFlightCallRegistry.register(functionData, span);
+            }
             scope = TracingHandler.startScope(tracer, span);
+            if (resourceUsageCaptureEnabled(options) && functionData.isResourceUsageCaptureEnabled()) {
+                startCpuTime = ResourceUsageTracker.currentThreadCpuTime();
+                startAllocatedBytes = ResourceUsageTracker.currentThreadAllocatedBytes();
+                captureResourceUsage = true;
+            }
             final Object response = joinPoint.proceed();
             TracingHandler.addSuccessTagToSpan(span);
             return response;
         } catch (Throwable t) {
             TracingHandler.addErrorTagToSpan(span);
+            if (debug) {
+                TracingHandler.addErrorFingerprintToSpan(span, t);
+            }
             throw t;
         } finally {
+            if (captureResourceUsage) {
+                recordResourceUsage(getMetricsFunctionData(options, functionData, callSignature, methodSignature), span,
+                        startCpuTime, startAllocatedBytes);
+            }
+            if (inFlightCall != null) {
+                if (stackSamplingEnabled(options)) {
+                    TracingHandler.addHotFramesToSpan(span, inFlightCall.hotFrames(StackSampler.TOP_FRAMES));
+                }
+                InFlightCallRegistry.unregister();
+            }
             TracingHandler.closeSpanAndScope(span, scope);
+            if (gauge != null) {
+                gauge.exit();
+            }
+            if (traceContext != null) {
+                traceContext.exit();
+            }
         }
     }
 
+    private void recordResourceUsage(final FunctionData metricsFunctionData,
+                                     final Span span,
+                                     final long startCpuTime,
+                                     final long startAllocatedBytes) {
+        final long cpuTime = startCpuTime < 0 ? -1 : ResourceUsageTracker.currentThreadCpuTime() - startCpuTime;
+        final long allocatedBytes = startAllocatedBytes < 0
+                ? -1
+                : ResourceUsageTracker.currentThreadAllocatedBytes() - startAllocatedBytes;
+        TracingHandler.addResourceUsageTagsToSpan(span, cpuTime, allocatedBytes);
+        ResourceUsageTracker.usage(metricsFunctionData).record(cpuTime, allocatedBytes);
+    }
+
+    /**
+     * Per method metrics live on the cached function data, so they are shared by all calls to the method even when
+     * the cache optimisation is disabled.
+     */
+    private FunctionData getMetricsFunctionData(final TracingOptions options,
+                                                final FunctionData functionData,
+                                                final Signature callSignature,
+                                                final MethodSignature methodSignature) {
+        return cacheDisabled(options)
+                ? getCachedFunctionData(callSignature, methodSignature)
+                : functionData;
+    }
+
+    private FunctionData getCachedFunctionData(final Signature callSignature,
+                                               final MethodSignature methodSignature) {
+        final Map<Method, FunctionData> classCache = functionDataCache.get(callSignature.getDeclaringType());
+        final Method method = methodSignature.getMethod();
+        final FunctionData functionData = classCache.get(method);
+        return functionData != null
+                ? functionData
+                : classCache.computeIfAbsent(method, key -> getFunctionData(callSignature, methodSignature));
+    }
+
     private FunctionData getFunctionData(final Signature callSignature,
                                          final MethodSignature methodSignature) {
         final TracingAnnotation tracingAnnotation = methodSignature.getMethod().getAnnotation(TracingAnnotation.class);
         final String className = getClassName(tracingAnnotation, callSignature);
         final String methodName = getMethodName(tracingAnnotation, callSignature);
-        return new FunctionData(className, methodName);
+        return new FunctionData(className, methodName, tracingAnnotation.captureResourceUsage());
     }
 
     private String getClassName(final TracingAnnotation tracingAnnotation,
@@ -95,12 +190,12 @@ public class TracingAspect {
                 : tracingAnnotation.method();
     }
 
-    private String getParameterString(final TracingOptions tracingOptions,
+    private String getParameterString(final boolean parameterCaptureEnabled,
                                       final MethodSignature methodSignature,
                                       final ProceedingJoinPoint joinPoint,
                                       final String className,
                                       final String methodName) {
-        if (tracingOptions == null || !tracingOptions.isParameterCaptureEnabled()) {
+        if (!parameterCaptureEnabled) {
             return null;
         }
 
@@ -147,4 +242,31 @@ public class TracingAspect {
     private boolean cacheDisabled(final TracingOptions options) {
         return options != null && options.isDisableCacheOptimisation();
     }
+
+    private boolean parameterCaptureEnabled(final TracingOptions options) {
+        return options != null && options.isParameterCaptureEnabled();
+    }
+
+    private boolean traceContextEnabled(final TracingOptions options) {
+        return options != null
+                && (!Strings.isNullOrEmpty(options.getDebugBaggageKey())
+                        || options.getMaxSpansPerTrace() > 0
+                        || options.getMaxSpansPerParent() > 0);
+    }
+
+    private boolean inFlightTrackingEnabled(final TracingOptions options) {
+        return options != null && (options.getHungCallDeadlineMs() > 0 || options.getStackSamplingIntervalMs() > 0);
+    }
+
+    private boolean stackSamplingEnabled(final TracingOptions options) {
+        return options != null && options.getStackSamplingIntervalMs() > 0;
+    }
+
+    private boolean resourceUsageCaptureEnabled(final TracingOptions options) {
+        return options != null && options.isResourceUsageCaptureEnabled();
+    }
+
+    private boolean concurrencyTrackingEnabled(final TracingOptions options) {
+        return options != null && options.isConcurrencyTrackingEnabled();
+    }
 }
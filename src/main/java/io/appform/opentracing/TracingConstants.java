@@ -12,4 +12,13 @@ public class TracingConstants {
     static final String CLASS_NAME_TAG = "class.name";
     static final String PARAMETER_STRING_TAG = "method.parameters";
     static final String METHOD_STATUS_TAG = "method.status";
+    static final String METHOD_CONCURRENCY_TAG = "method.concurrency";
+    static final String METHOD_DEBUG_TAG = "method.debug";
+    static final String ERROR_FINGERPRINT_TAG = "method.error.fingerprint";
+    static final String HUNG_CALL_EVENT = "hung.call";
+    static final String HUNG_CALL_ELAPSED_TAG = "method.elapsed.ms";
+    static final String HOT_FRAMES_TAG = "method.profile.hot_frames";
+    static final String CPU_TIME_TAG = "method.cpu.nanos";
+    static final String ALLOCATED_BYTES_TAG = "method.allocated.bytes";
+    static final String SPANS_DROPPED_TAG = "trace.spans.dropped";
 }
@@ -4,10 +4,16 @@ import com.google.common.base.Strings;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
 import io.opentracing.util.GlobalTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * Utility class that handles all span and scope related operations
  */
@@ -24,9 +30,59 @@ public class TracingHandler {
         }
     }
 
+    static Span getActiveSpan(final Tracer tracer) {
+        try {
+            if (tracer == null) {
+                return null;
+            }
+            return tracer.activeSpan();
+        } catch (Exception e) {
+            log.error("Error while getting active span", e);
+            return null;
+        }
+    }
+
+    static String getTraceId(final Span span) {
+        try {
+            if (span == null) {
+                return null;
+            }
+            return span.context().toTraceId();
+        } catch (Exception e) {
+            log.error("Error while getting trace id", e);
+            return null;
+        }
+    }
+
+    static String getSpanId(final Span span) {
+        try {
+            if (span == null) {
+                return null;
+            }
+            return span.context().toSpanId();
+        } catch (Exception e) {
+            log.error("Error while getting span id", e);
+            return null;
+        }
+    }
+
+    static String getBaggageItem(final Span span,
+                                 final String key) {
+        try {
+            if (span == null) {
+                return null;
+            }
+            return span.getBaggageItem(key);
+        } catch (Exception e) {
+            log.error("Error while reading baggage item", e);
+            return null;
+        }
+    }
+
     static Span startSpan(final Tracer tracer,
                           final FunctionData functionData,
-                          final String parameterString) {
+                          final String parameterString,
+                          final boolean debug) {
         try {
             if (tracer == null) {
                 return null;
@@ -35,11 +91,16 @@ public class TracingHandler {
             if (parentSpan == null) {
                 return null;
             }
-            Span span = tracer.buildSpan("method:" + functionData.getMethodName())
+            Tracer.SpanBuilder spanBuilder = tracer.buildSpan("method:" + functionData.getMethodName())
                     .asChildOf(parentSpan)
                     .withTag(TracingConstants.CLASS_NAME_TAG, functionData.getClassName())
-                    .withTag(TracingConstants.METHOD_NAME_TAG, functionData.getMethodName())
-                    .start();
+                    .withTag(TracingConstants.METHOD_NAME_TAG, functionData.getMethodName());
+            if (debug) {
+                // Sampling decisions are taken when a span starts, so the priority needs to be set on the builder
+                spanBuilder = spanBuilder.withTag(Tags.SAMPLING_PRIORITY, 1)
+                        .withTag(TracingConstants.METHOD_DEBUG_TAG, true);
+            }
+            Span span = spanBuilder.start();
             if (!Strings.isNullOrEmpty(parameterString)) {
                 span.setTag(TracingConstants.PARAMETER_STRING_TAG, parameterString);
             }
@@ -86,6 +147,107 @@ public class TracingHandler {
         }
     }
 
+    static void addConcurrencyTagToSpan(final Span span,
+                                        final long concurrency) {
+        try {
+            if (span == null) {
+                return;
+            }
+            span.setTag(TracingConstants.METHOD_CONCURRENCY_TAG, concurrency);
+        } catch (Exception e) {
+            log.error("Error while adding concurrency tag to span", e);
+        }
+    }
+
+    static void addErrorFingerprintToSpan(final Span span,
+                                          final Throwable t) {
+        try {
+            if (span == null || t == null) {
+                return;
+            }
+            final StackTraceElement[] stackTrace = t.getStackTrace();
+            final String fingerprint = stackTrace.length == 0
+                    ? t.getClass().getName()
+                    : t.getClass().getName() + "@" + stackTrace[0].getClassName() + "."
+                            + stackTrace[0].getMethodName() + ":" + stackTrace[0].getLineNumber();
+            span.setTag(TracingConstants.ERROR_FINGERPRINT_TAG, fingerprint);
+        } catch (Exception e) {
+            log.error("Error while adding error fingerprint to span", e);
+        }
+    }
+
+    static void addHotFramesToSpan(final Span span,
+                                   final List<Map.Entry<String, Integer>> hotFrames) {
+        try {
+            if (span == null || hotFrames.isEmpty()) {
+                return;
+            }
+            span.setTag(TracingConstants.HOT_FRAMES_TAG, hotFrames.stream()
+                    .map(frame -> frame.getKey() + "=" + frame.getValue())
+                    .collect(Collectors.joining(", ")));
+        } catch (Exception e) {
+            log.error("Error while adding hot frames to span", e);
+        }
+    }
+
+    static void addResourceUsageTagsToSpan(final Span span,
+                                           final long cpuTimeNanos,
+                                           final long allocatedBytes) {
+        try {
+            if (span == null) {
+                return;
+            }
+            if (cpuTimeNanos >= 0) {
+                span.setTag(TracingConstants.CPU_TIME_TAG, cpuTimeNanos);
+            }
+            if (allocatedBytes >= 0) {
+                span.setTag(TracingConstants.ALLOCATED_BYTES_TAG, allocatedBytes);
+            }
+        } catch (Exception e) {
+            log.error("Error while adding resource usage tags to span", e);
+        }
+    }
+
+    static void addSpansDroppedTagToSpan(final Span span,
+                                         final long spansDropped) {
+        try {
+            if (span == null) {
+                return;
+            }
+            span.setTag(TracingConstants.SPANS_DROPPED_TAG, spansDropped);
+        } catch (Exception e) {
+            log.error("Error while adding spans dropped tag to span", e);
+        }
+    }
+
+    static void reportHungCall(final Tracer tracer,
+                               final Span span,
+                               final FunctionData functionData,
+                               final long elapsedMs,
+                               final String threadName,
+                               final String stack) {
+        try {
+            if (tracer == null || span == null) {
+                return;
+            }
+            Span hungCallSpan = tracer.buildSpan("hung:" + functionData.getMethodName())
+                    .asChildOf(span.context())
+                    .ignoreActiveSpan()
+                    .withTag(TracingConstants.CLASS_NAME_TAG, functionData.getClassName())
+                    .withTag(TracingConstants.METHOD_NAME_TAG, functionData.getMethodName())
+                    .withTag(TracingConstants.HUNG_CALL_ELAPSED_TAG, elapsedMs)
+                    .start();
+            final Map<String, Object> fields = new HashMap<>();
+            fields.put("event", TracingConstants.HUNG_CALL_EVENT);
+            fields.put("thread.name", threadName);
+            fields.put("stack", stack);
+            hungCallSpan.log(fields);
+            hungCallSpan.finish();
+        } catch (Exception e) {
+            log.error("Error while reporting hung call", e);
+        }
+    }
+
     static void closeSpanAndScope(final Span span,
                                   final Scope scope) {
         try {
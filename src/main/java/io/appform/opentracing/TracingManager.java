@@ -6,15 +6,42 @@ package io.appform.opentracing;
 public class TracingManager {
 
     private static TracingOptions tracingOptions;
+    private static HungCallWatchdog hungCallWatchdog;
+    private static StackSampler stackSampler;
+    private static SpanBudgets spanBudgets;
 
     private TracingManager() {
     }
 
-    public static void initialize(final TracingOptions tracingOptions) {
+    public static synchronized void initialize(final TracingOptions tracingOptions) {
+        if (hungCallWatchdog != null) {
+            hungCallWatchdog.stop();
+            hungCallWatchdog = null;
+        }
+        if (stackSampler != null) {
+            stackSampler.stop();
+            stackSampler = null;
+        }
+        if (tracingOptions != null && tracingOptions.getHungCallDeadlineMs() > 0) {
+            hungCallWatchdog = HungCallWatchdog.start(tracingOptions.getHungCallDeadlineMs(),
+                                                      tracingOptions.getHungCallScanIntervalMs());
+        }
+        if (tracingOptions != null && tracingOptions.getStackSamplingIntervalMs() > 0) {
+            stackSampler = StackSampler.start(tracingOptions.getStackSamplingIntervalMs(),
+                                              Math.max(1, tracingOptions.getStackSamplingMaxThreads()));
+        }
+        spanBudgets = tracingOptions != null
+                && (tracingOptions.getMaxSpansPerTrace() > 0 || tracingOptions.getMaxSpansPerParent() > 0)
+                ? new SpanBudgets(tracingOptions.getSpanBudgetExpiryMs(), tracingOptions.getMaxTrackedTraces())
+                : null;
         TracingManager.tracingOptions = tracingOptions;
     }
 
     public static TracingOptions getTracingOptions() {
         return tracingOptions;
     }
+
+    static SpanBudgets getSpanBudgets() {
+        return spanBudgets;
+    }
 }
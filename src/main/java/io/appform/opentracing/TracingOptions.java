@@ -7,7 +7,17 @@ public class TracingOptions {
 
     private boolean parameterCaptureEnabled;
     private boolean disableCacheOptimisation;
-
+    private boolean concurrencyTrackingEnabled;
+    private String debugBaggageKey;
+    private long hungCallDeadlineMs;
+    private long hungCallScanIntervalMs = 1000;
+    private long stackSamplingIntervalMs;
+    private int stackSamplingMaxThreads = 16;
+    private boolean resourceUsageCaptureEnabled;
+    private int maxSpansPerTrace;
+    private int maxSpansPerParent;
+    private long spanBudgetExpiryMs = 10000;
+    private long maxTrackedTraces = 10000;
 
     public boolean isParameterCaptureEnabled() {
         return parameterCaptureEnabled;
@@ -25,6 +35,135 @@ public class TracingOptions {
         this.disableCacheOptimisation = disableCacheOptimisation;
     }
 
+    public boolean isConcurrencyTrackingEnabled() {
+        return concurrencyTrackingEnabled;
+    }
+
+    public void setConcurrencyTrackingEnabled(final boolean concurrencyTrackingEnabled) {
+        this.concurrencyTrackingEnabled = concurrencyTrackingEnabled;
+    }
+
+    /**
+     * Baggage item that marks a trace for full detail tracing. When the active span carries this item, parameters
+     * are captured, spans are force sampled and failures are fingerprinted for that trace only.
+     * @return Baggage key if debug tracing is enabled, null otherwise
+     */
+    public String getDebugBaggageKey() {
+        return debugBaggageKey;
+    }
+
+    public void setDebugBaggageKey(final String debugBaggageKey) {
+        this.debugBaggageKey = debugBaggageKey;
+    }
+
+    /**
+     * Traced calls running longer than this are reported by a background watchdog.
+     * @return Deadline in milliseconds, 0 if the watchdog is disabled
+     */
+    public long getHungCallDeadlineMs() {
+        return hungCallDeadlineMs;
+    }
+
+    public void setHungCallDeadlineMs(final long hungCallDeadlineMs) {
+        this.hungCallDeadlineMs = hungCallDeadlineMs;
+    }
+
+    public long getHungCallScanIntervalMs() {
+        return hungCallScanIntervalMs;
+    }
+
+    public void setHungCallScanIntervalMs(final long hungCallScanIntervalMs) {
+        this.hungCallScanIntervalMs = hungCallScanIntervalMs;
+    }
+
+    /**
+     * Interval at which stacks of threads inside traced calls are sampled. The most sampled frames of a call are
+     * added to its span.
+     * @return Sampling interval in milliseconds, 0 if stack sampling is disabled
+     */
+    public long getStackSamplingIntervalMs() {
+        return stackSamplingIntervalMs;
+    }
+
+    public void setStackSamplingIntervalMs(final long stackSamplingIntervalMs) {
+        this.stackSamplingIntervalMs = stackSamplingIntervalMs;
+    }
+
+    /**
+     * @return Maximum number of threads sampled in a single sampling run
+     */
+    public int getStackSamplingMaxThreads() {
+        return stackSamplingMaxThreads;
+    }
+
+    public void setStackSamplingMaxThreads(final int stackSamplingMaxThreads) {
+        this.stackSamplingMaxThreads = stackSamplingMaxThreads;
+    }
+
+    /**
+     * Enables capture of CPU time and allocated bytes for methods annotated with
+     * {@link TracingAnnotation#captureResourceUsage()}. Usage is added to spans and aggregated in
+     * {@link ResourceUsageTracker}.
+     * @return true if resource usage capture is enabled
+     */
+    public boolean isResourceUsageCaptureEnabled() {
+        return resourceUsageCaptureEnabled;
+    }
+
+    public void setResourceUsageCaptureEnabled(final boolean resourceUsageCaptureEnabled) {
+        this.resourceUsageCaptureEnabled = resourceUsageCaptureEnabled;
+    }
+
+    /**
+     * Maximum number of spans created by traced calls in a trace, across all threads that take part in it. Once
+     * exhausted, traced calls run without spans and the root span is tagged with the number of spans dropped. Traces
+     * flagged through {@link #getDebugBaggageKey()} are exempt, as they are meant to be traced in full.
+     * @return Span budget, 0 if unlimited
+     */
+    public int getMaxSpansPerTrace() {
+        return maxSpansPerTrace;
+    }
+
+    public void setMaxSpansPerTrace(final int maxSpansPerTrace) {
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    /**
+     * @return Maximum number of spans created directly under a single parent, 0 if unlimited. Debug traces are exempt.
+     */
+    public int getMaxSpansPerParent() {
+        return maxSpansPerParent;
+    }
+
+    public void setMaxSpansPerParent(final int maxSpansPerParent) {
+        this.maxSpansPerParent = maxSpansPerParent;
+    }
+
+    /**
+     * The span budget of a trace is released when the outermost traced call under the root span returns. Expiry only
+     * reclaims budgets of traces whose root thread never gets there, so it just needs to outlast the fan-out of a
+     * trace.
+     * @return Time after which the span budget of a trace that is no longer touched is discarded
+     */
+    public long getSpanBudgetExpiryMs() {
+        return spanBudgetExpiryMs;
+    }
+
+    public void setSpanBudgetExpiryMs(final long spanBudgetExpiryMs) {
+        this.spanBudgetExpiryMs = spanBudgetExpiryMs;
+    }
+
+    /**
+     * @return Maximum number of traces whose span budgets are kept at a time
+     */
+    public long getMaxTrackedTraces() {
+        return maxTrackedTraces;
+    }
+
+    public void setMaxTrackedTraces(final long maxTrackedTraces) {
+        this.maxTrackedTraces = maxTrackedTraces;
+    }
+
     public TracingOptions() {
         /* Nothing to do here */
     }
@@ -32,6 +171,17 @@ public class TracingOptions {
     public static class TracingOptionsBuilder {
         private boolean parameterCaptureEnabled;
         private boolean disableCacheOptimisation;
+        private boolean concurrencyTrackingEnabled;
+        private String debugBaggageKey;
+        private long hungCallDeadlineMs;
+        private long hungCallScanIntervalMs = 1000;
+        private long stackSamplingIntervalMs;
+        private int stackSamplingMaxThreads = 16;
+        private boolean resourceUsageCaptureEnabled;
+        private int maxSpansPerTrace;
+        private int maxSpansPerParent;
+        private long spanBudgetExpiryMs = 10000;
+        private long maxTrackedTraces = 10000;
 
         public TracingOptionsBuilder parameterCaptureEnabled(final boolean parameterCaptureEnabled) {
             this.parameterCaptureEnabled = parameterCaptureEnabled;
@@ -43,10 +193,76 @@ public class TracingOptions {
             return this;
         }
 
+        public TracingOptionsBuilder concurrencyTrackingEnabled(final boolean concurrencyTrackingEnabled) {
+            this.concurrencyTrackingEnabled = concurrencyTrackingEnabled;
+            return this;
+        }
+
+        public TracingOptionsBuilder debugBaggageKey(final String debugBaggageKey) {
+            this.debugBaggageKey = debugBaggageKey;
+            return this;
+        }
+
+        public TracingOptionsBuilder hungCallDeadlineMs(final long hungCallDeadlineMs) {
+            this.hungCallDeadlineMs = hungCallDeadlineMs;
+            return this;
+        }
+
+        public TracingOptionsBuilder hungCallScanIntervalMs(final long hungCallScanIntervalMs) {
+            this.hungCallScanIntervalMs = hungCallScanIntervalMs;
+            return this;
+        }
+
+        public TracingOptionsBuilder stackSamplingIntervalMs(final long stackSamplingIntervalMs) {
+            this.stackSamplingIntervalMs = stackSamplingIntervalMs;
+            return this;
+        }
+
+        public TracingOptionsBuilder stackSamplingMaxThreads(final int stackSamplingMaxThreads) {
+            this.stackSamplingMaxThreads = stackSamplingMaxThreads;
+            return this;
+        }
+
+        public TracingOptionsBuilder resourceUsageCaptureEnabled(final boolean resourceUsageCaptureEnabled) {
+            this.resourceUsageCaptureEnabled = resourceUsageCaptureEnabled;
+            return this;
+        }
+
+        public TracingOptionsBuilder maxSpansPerTrace(final int maxSpansPerTrace) {
+            this.maxSpansPerTrace = maxSpansPerTrace;
+            return this;
+        }
+
+        public TracingOptionsBuilder maxSpansPerParent(final int maxSpansPerParent) {
+            this.maxSpansPerParent = maxSpansPerParent;
+            return this;
+        }
+
+        public TracingOptionsBuilder spanBudgetExpiryMs(final long spanBudgetExpiryMs) {
+            this.spanBudgetExpiryMs = spanBudgetExpiryMs;
+            return this;
+        }
+
+        public TracingOptionsBuilder maxTrackedTraces(final long maxTrackedTraces) {
+            this.maxTrackedTraces = maxTrackedTraces;
+            return this;
+        }
+
         public TracingOptions build() {
             TracingOptions options = new TracingOptions();
             options.setParameterCaptureEnabled(parameterCaptureEnabled);
             options.setDisableCacheOptimisation(disableCacheOptimisation);
+            options.setConcurrencyTrackingEnabled(concurrencyTrackingEnabled);
+            options.setDebugBaggageKey(debugBaggageKey);
+            options.setHungCallDeadlineMs(hungCallDeadlineMs);
+            options.setHungCallScanIntervalMs(hungCallScanIntervalMs);
+            options.setStackSamplingIntervalMs(stackSamplingIntervalMs);
+            options.setStackSamplingMaxThreads(stackSamplingMaxThreads);
+            options.setResourceUsageCaptureEnabled(resourceUsageCaptureEnabled);
+            options.setMaxSpansPerTrace(maxSpansPerTrace);
+            options.setMaxSpansPerParent(maxSpansPerParent);
+            options.setSpanBudgetExpiryMs(spanBudgetExpiryMs);
+            options.setMaxTrackedTraces(maxTrackedTraces);
             return options;
         }
     }
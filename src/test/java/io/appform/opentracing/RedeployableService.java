@@ -0,0 +1,12 @@
+package io.appform.opentracing;
+
+/**
+ * Traced class that tests load through throwaway classloaders to simulate redeploys
+ */
+public class RedeployableService {
+
+    @TracingAnnotation(captureResourceUsage = true)
+    public void call() {
+        //Empty as needed
+    }
+}
@@ -1,8 +1,12 @@
 package io.appform.opentracing;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+import io.opentracing.Scope;
+import io.opentracing.Span;
 import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
+import io.opentracing.tag.Tags;
 import io.opentracing.util.GlobalTracer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -10,10 +14,16 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -47,6 +57,7 @@ class TracingAspectTest {
     @AfterEach
     void cleanup() {
         mockTracer.reset();
+        TracingManager.initialize(null);
 
     }
 
@@ -169,6 +180,298 @@ class TracingAspectTest {
                 "test3.test4", "SUCCESS");
     }
 
+    @Test
+    void testTracingWithConcurrencyTrackingEnabled() {
+        mockTracer.activateSpan(mockTracer.buildSpan("test").start());
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().concurrencyTrackingEnabled(true).build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        Assertions.assertDoesNotThrow(() -> testAnnotation.parameterValidFunction("test1", "test2"));
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(1, finishedSpans.size());
+        Assertions.assertEquals(1L, finishedSpans.get(0).tags().get(TracingConstants.METHOD_CONCURRENCY_TAG));
+    }
+
+    @Test
+    void testConcurrencySnapshot() throws Exception {
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().concurrencyTrackingEnabled(true).build());
+        final int numThreads = 3;
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        final CountDownLatch entered = new CountDownLatch(numThreads);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = IntStream.range(0, numThreads)
+                    .mapToObj(i -> executorService.submit(() -> testAnnotation.blockingFunction(entered, release)))
+                    .collect(Collectors.toList());
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            ConcurrencySnapshot snapshot = findConcurrencySnapshot("blockingFunction");
+            Assertions.assertEquals(numThreads, snapshot.getInFlight());
+            Assertions.assertEquals(numThreads, snapshot.getHighWaterMark());
+
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            snapshot = findConcurrencySnapshot("blockingFunction");
+            Assertions.assertEquals(0, snapshot.getInFlight());
+            Assertions.assertEquals(numThreads, snapshot.getHighWaterMark());
+            Assertions.assertEquals(0, findConcurrencySnapshot("blockingFunction").getHighWaterMark());
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTracingWhenDebugBaggageIsPresent() {
+        mockTracer.activateSpan(mockTracer.buildSpan("test").ignoreActiveSpan().start()
+                .setBaggageItem("debug-trace", "true"));
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().debugBaggageKey("debug-trace").build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        Assertions.assertDoesNotThrow(() -> testAnnotation.parameterValidFunction("test1", "test2"));
+        Assertions.assertThrows(RuntimeException.class, testAnnotation::throwException);
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(2, finishedSpans.size());
+        assertSpanMetaData(finishedSpans.get(0), "method:parameterValidFunction", "parameterValidFunction", "TestAnnotation",
+                "test1.test2", "SUCCESS");
+        Assertions.assertEquals(1, finishedSpans.get(0).tags().get(Tags.SAMPLING_PRIORITY.getKey()));
+        Assertions.assertEquals(true, finishedSpans.get(0).tags().get(TracingConstants.METHOD_DEBUG_TAG));
+        final Object fingerprint = finishedSpans.get(1).tags().get(TracingConstants.ERROR_FINGERPRINT_TAG);
+        Assertions.assertNotNull(fingerprint);
+        assertTrue(fingerprint.toString().startsWith(RuntimeException.class.getName() + "@"));
+    }
+
+    @Test
+    void testTracingWhenDebugBaggageIsAbsent() {
+        mockTracer.activateSpan(mockTracer.buildSpan("test").ignoreActiveSpan().start());
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().debugBaggageKey("debug-trace").build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        Assertions.assertDoesNotThrow(() -> testAnnotation.parameterValidFunction("test1", "test2"));
+        Assertions.assertThrows(RuntimeException.class, testAnnotation::throwException);
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(2, finishedSpans.size());
+        assertSpanMetaData(finishedSpans.get(0), "method:parameterValidFunction", "parameterValidFunction", "TestAnnotation",
+                null, "SUCCESS");
+        Assertions.assertNull(finishedSpans.get(0).tags().get(TracingConstants.METHOD_DEBUG_TAG));
+        Assertions.assertNull(finishedSpans.get(1).tags().get(TracingConstants.ERROR_FINGERPRINT_TAG));
+    }
+
+    @Test
+    void testHungCallIsReportedAsPartialSpan() throws Exception {
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder()
+                .hungCallDeadlineMs(50)
+                .hungCallScanIntervalMs(10)
+                .build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final List<MockSpan> spansWhileHung;
+        try {
+            final Future<?> future = executorService.submit(() -> {
+                mockTracer.activateSpan(mockTracer.buildSpan("test").ignoreActiveSpan().start());
+                testAnnotation.blockingFunction(entered, release);
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            while (mockTracer.finishedSpans().isEmpty() && stopwatch.elapsed(TimeUnit.SECONDS) < 5) {
+                Thread.sleep(10);
+            }
+            spansWhileHung = mockTracer.finishedSpans();
+            release.countDown();
+            future.get(5, TimeUnit.SECONDS);
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, spansWhileHung.size());
+        final MockSpan hungCallSpan = spansWhileHung.get(0);
+        Assertions.assertEquals("hung:blockingFunction", hungCallSpan.operationName());
+        assertTrue((Long) hungCallSpan.tags().get(TracingConstants.HUNG_CALL_ELAPSED_TAG) >= 50);
+        List<MockSpan.LogEntry> logEntries = hungCallSpan.logEntries();
+        Assertions.assertEquals(1, logEntries.size());
+        Map<String, ?> fields = logEntries.get(0).fields();
+        Assertions.assertEquals(TracingConstants.HUNG_CALL_EVENT, fields.get("event"));
+        assertTrue(fields.get("stack").toString().contains("blockingFunction"));
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(2, finishedSpans.size());
+        final MockSpan callSpan = finishedSpans.get(1);
+        Assertions.assertEquals("method:blockingFunction", callSpan.operationName());
+        Assertions.assertEquals(callSpan.context().spanId(), hungCallSpan.parentId());
+        assertTrue(callSpan.logEntries().isEmpty());
+    }
+
+    @Test
+    void testHotFramesAreAddedWhenStackSamplingEnabled() throws Exception {
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder()
+                .stackSamplingIntervalMs(5)
+                .stackSamplingMaxThreads(2)
+                .build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> future = executorService.submit(() -> {
+                mockTracer.activateSpan(mockTracer.buildSpan("test").ignoreActiveSpan().start());
+                testAnnotation.blockingFunction(entered, release);
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            release.countDown();
+            future.get(5, TimeUnit.SECONDS);
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(1, finishedSpans.size());
+        final Object hotFrames = finishedSpans.get(0).tags().get(TracingConstants.HOT_FRAMES_TAG);
+        Assertions.assertNotNull(hotFrames);
+        assertTrue(hotFrames.toString().startsWith(TestAnnotation.class.getName() + ".blockingFunction"));
+    }
+
+    @Test
+    void testTracingWithResourceUsageCaptureEnabled() {
+        mockTracer.activateSpan(mockTracer.buildSpan("test").start());
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().resourceUsageCaptureEnabled(true).build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        Assertions.assertEquals(1 << 20, testAnnotation.allocatingFunction(1 << 20));
+        Assertions.assertDoesNotThrow(() -> testAnnotation.parameterValidFunction("test1", "test2"));
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(2, finishedSpans.size());
+        Map<String, Object> tags = finishedSpans.get(0).tags();
+        assertTrue((Long) tags.get(TracingConstants.ALLOCATED_BYTES_TAG) >= (1 << 20));
+        assertTrue((Long) tags.get(TracingConstants.CPU_TIME_TAG) >= 0);
+        Assertions.assertNull(finishedSpans.get(1).tags().get(TracingConstants.ALLOCATED_BYTES_TAG));
+        Assertions.assertNull(finishedSpans.get(1).tags().get(TracingConstants.CPU_TIME_TAG));
+
+        final ResourceUsageSnapshot snapshot = ResourceUsageTracker.snapshot()
+                .stream()
+                .filter(usage -> "allocatingFunction".equals(usage.getMethodName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No usage for allocatingFunction"));
+        Assertions.assertEquals(1, snapshot.getCalls());
+        assertTrue(snapshot.getAllocatedBytes() >= (1 << 20));
+        Assertions.assertFalse(ResourceUsageTracker.snapshot()
+                .stream()
+                .anyMatch(usage -> "parameterValidFunction".equals(usage.getMethodName())));
+    }
+
+    @Test
+    void testSpansAreDroppedOnceTraceBudgetIsExhausted() {
+        final MockSpan rootSpan = mockTracer.buildSpan("test").ignoreActiveSpan().start();
+        mockTracer.activateSpan(rootSpan);
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().maxSpansPerTrace(3).build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        IntStream.range(0, 10).forEach(i -> testAnnotation.noArgsFunction());
+
+        Assertions.assertEquals(3, mockTracer.finishedSpans().size());
+        Assertions.assertEquals(7L, rootSpan.tags().get(TracingConstants.SPANS_DROPPED_TAG));
+    }
+
+    @Test
+    void testSpansAreDroppedOnceParentBudgetIsExhausted() {
+        final MockSpan rootSpan = mockTracer.buildSpan("test").ignoreActiveSpan().start();
+        mockTracer.activateSpan(rootSpan);
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().maxSpansPerParent(2).build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        IntStream.range(0, 2).forEach(i -> testAnnotation.nestedFunction(3));
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(6, finishedSpans.size());
+        Assertions.assertEquals(2, finishedSpans.stream()
+                .filter(span -> span.operationName().equals("method:nestedFunction"))
+                .count());
+        Assertions.assertEquals(2L, rootSpan.tags().get(TracingConstants.SPANS_DROPPED_TAG));
+    }
+
+    @Test
+    void testSubtreeOfDroppedSpanIsDropped() {
+        final MockSpan rootSpan = mockTracer.buildSpan("test").ignoreActiveSpan().start();
+        mockTracer.activateSpan(rootSpan);
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().maxSpansPerParent(2).build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        IntStream.range(0, 3).forEach(i -> testAnnotation.nestedFunction(3));
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(6, finishedSpans.size());
+        Assertions.assertEquals(2, finishedSpans.stream()
+                .filter(span -> span.parentId() == rootSpan.context().spanId())
+                .count());
+        Assertions.assertEquals(6L, rootSpan.tags().get(TracingConstants.SPANS_DROPPED_TAG));
+    }
+
+    @Test
+    void testTraceBudgetIsSharedAcrossThreads() throws Exception {
+        final MockSpan rootSpan = mockTracer.buildSpan("test").ignoreActiveSpan().start();
+        mockTracer.activateSpan(rootSpan);
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder().maxSpansPerTrace(5).build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            testAnnotation.fanOutFunction(executorService, 4, 5);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        List<MockSpan> finishedSpans = mockTracer.finishedSpans();
+        Assertions.assertEquals(5, finishedSpans.size());
+        Assertions.assertEquals(16L, rootSpan.tags().get(TracingConstants.SPANS_DROPPED_TAG));
+        Assertions.assertTrue(finishedSpans.stream()
+                .noneMatch(span -> span.tags().containsKey(TracingConstants.SPANS_DROPPED_TAG)));
+    }
+
+    @Test
+    void testDebugTracesAreExemptFromSpanBudget() {
+        mockTracer.activateSpan(mockTracer.buildSpan("test").ignoreActiveSpan().start()
+                .setBaggageItem("debug-trace", "true"));
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder()
+                .debugBaggageKey("debug-trace")
+                .maxSpansPerTrace(1)
+                .build());
+        final TestAnnotation testAnnotation = new TestAnnotation();
+        IntStream.range(0, 3).forEach(i -> testAnnotation.noArgsFunction());
+
+        Assertions.assertEquals(3, mockTracer.finishedSpans().size());
+    }
+
+    @Test
+    void testFunctionDataCacheReleasesRedeployedClasses() throws Exception {
+        mockTracer.activateSpan(mockTracer.buildSpan("test").start());
+        TracingManager.initialize(new TracingOptions.TracingOptionsBuilder()
+                .concurrencyTrackingEnabled(true)
+                .resourceUsageCaptureEnabled(true)
+                .build());
+        final int deployments = 100;
+        final List<WeakReference<ClassLoader>> loaders = new ArrayList<>();
+        for (int i = 0; i < deployments; i++) {
+            loaders.add(new WeakReference<>(deployAndCall(String.format("Redeployed%09d", i))));
+        }
+        Assertions.assertEquals(deployments, mockTracer.finishedSpans()
+                .stream()
+                .map(span -> span.tags().get(TracingConstants.CLASS_NAME_TAG))
+                .distinct()
+                .count());
+        mockTracer.reset();
+
+        for (int i = 0; i < 20 && (loaders.stream().anyMatch(loader -> loader.get() != null)
+                || redeployedMetricsCount() != 0); i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(0, loaders.stream().filter(loader -> loader.get() != null).count());
+        Assertions.assertEquals(0, redeployedMetricsCount());
+    }
+
     @Test
     void testCachingMT() {
         final double avgTime = runMTTest();
@@ -211,6 +514,32 @@ class TracingAspectTest {
         return ((double) total) / numThreads;
     }
 
+    private ClassLoader deployAndCall(final String className) throws Exception {
+        final ClassLoader loader = new RedeployClassLoader(getClass().getClassLoader(), className);
+        final Class<?> serviceClass = loader.loadClass(RedeployableService.class.getPackage().getName() + "." + className);
+        serviceClass.getMethod("call").invoke(serviceClass.newInstance());
+        return loader;
+    }
+
+    private long redeployedMetricsCount() {
+        return ConcurrencyTracker.snapshot()
+                .stream()
+                .filter(snapshot -> snapshot.getClassName().startsWith("Redeployed"))
+                .count()
+                + ResourceUsageTracker.snapshot()
+                .stream()
+                .filter(snapshot -> snapshot.getClassName().startsWith("Redeployed"))
+                .count();
+    }
+
+    private ConcurrencySnapshot findConcurrencySnapshot(final String methodName) {
+        return ConcurrencyTracker.snapshot()
+                .stream()
+                .filter(snapshot -> methodName.equals(snapshot.getMethodName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No gauge for " + methodName));
+    }
+
     private void assertSpanMetaData(final MockSpan finishedSpan,
                                     final String operationName,
                                     final String methodName,
@@ -248,9 +577,102 @@ class TracingAspectTest {
             //Empty as needed
         }
 
+        @TracingAnnotation()
+        private void nestedFunction(int children) {
+            IntStream.range(0, children).forEach(i -> noArgsFunction());
+        }
+
+        @TracingAnnotation()
+        private void fanOutFunction(ExecutorService executorService, int tasks, int callsPerTask) throws Exception {
+            final Span parentSpan = GlobalTracer.get().activeSpan();
+            final List<Future<?>> futures = IntStream.range(0, tasks)
+                    .mapToObj(i -> executorService.submit(() -> {
+                        try (Scope ignored = GlobalTracer.get().activateSpan(parentSpan)) {
+                            IntStream.range(0, callsPerTask).forEach(j -> noArgsFunction());
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        @TracingAnnotation(captureResourceUsage = true)
+        private int allocatingFunction(int size) {
+            return new byte[size].length;
+        }
+
+        @TracingAnnotation()
+        private void blockingFunction(CountDownLatch entered, CountDownLatch release) {
+            entered.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
         @TracingAnnotation()
         private void invalidArgsFunction(@TracingParameter MockTracer mockTracer) {
             System.out.println("Invalid args");
         }
     }
+
+    /**
+     * Loads {@link RedeployableService} afresh under a new class name, the way a plugin host generates proxies on
+     * redeploy. The name is swapped in the class bytes, so it needs to be as long as the original one.
+     */
+    private static class RedeployClassLoader extends ClassLoader {
+        private static final byte[] ORIGINAL_NAME = RedeployableService.class.getSimpleName()
+                .getBytes(StandardCharsets.US_ASCII);
+
+        private final String className;
+
+        RedeployClassLoader(ClassLoader parent, String className) {
+            super(parent);
+            Assertions.assertEquals(ORIGINAL_NAME.length, className.length());
+            this.className = RedeployableService.class.getPackage().getName() + "." + className;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(className)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    final String resource = RedeployableService.class.getName().replace('.', '/')
+                            + name.substring(className.length()) + ".class";
+                    try (InputStream in = getParent().getResourceAsStream(resource)) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        final byte[] bytes = rename(ByteStreams.toByteArray(in));
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    }
+                    catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+
+        private byte[] rename(final byte[] bytes) {
+            final byte[] newName = className.substring(className.lastIndexOf('.') + 1)
+                    .getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i <= bytes.length - ORIGINAL_NAME.length; i++) {
+                int j = 0;
+                while (j < ORIGINAL_NAME.length && bytes[i + j] == ORIGINAL_NAME[j]) {
+                    j++;
+                }
+                if (j == ORIGINAL_NAME.length) {
+                    System.arraycopy(newName, 0, bytes, i, newName.length);
+                }
+            }
+            return bytes;
+        }
+    }
 }
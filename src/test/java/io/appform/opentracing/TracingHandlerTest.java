@@ -44,8 +44,8 @@ class TracingHandlerTest {
         final String methodName = "test";
         final String className = "testClass";
         Assertions.assertNull(TracingHandler.startSpan(null, new FunctionData(null, null),
-                "test"));
-        Span span = TracingHandler.startSpan(GlobalTracer.get(), new FunctionData(className, methodName), "test");
+                "test", false));
+        Span span = TracingHandler.startSpan(GlobalTracer.get(), new FunctionData(className, methodName), "test", false);
         Assertions.assertNotNull(span);
         Assertions.assertTrue(span instanceof MockSpan);
         MockSpan mockSpan = (MockSpan) span;